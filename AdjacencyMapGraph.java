@@ -12,6 +12,7 @@ import java.util.Map;
 public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	protected Map<V, Map<V, E>> out;		// from v1 to v2: { v1 -> { v2 -> edge } }
 	protected Map<V, Map<V, E>> in;		// to v1 from v2: { v1 -> { v2 -> edge } }
+	protected int numEdges;					// kept up to date by the insert/remove methods
 
 	/**
 	 * Default constructor, creating an empty graph 
@@ -26,10 +27,7 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	}
 
 	public int numEdges() {
-		// Don't actually keep an edge list around, so compute this on the fly
-		int n = 0;
-		for (V v : vertices()) n += outDegree(v);
-		return n;
+		return numEdges;
 	}
 
 	public Iterable<V> vertices() {
@@ -72,6 +70,7 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	}
 
 	public void insertDirected(V u, V v, E e) {
+		if (!out.get(u).containsKey(v)) numEdges++;
 		out.get(u).put(v, e);
 		in.get(v).put(u, e);
 	}
@@ -84,6 +83,7 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 
 	public void removeVertex(V v) {
 		if (!out.keySet().contains(v)) return;
+		numEdges -= out.get(v).size() + in.get(v).size() - (out.get(v).containsKey(v) ? 1 : 0);	// a self-loop is in both lists
 		// remove v from all adjacency lists for other vertices
 		for (V u : inNeighbors(v)) { // u has an edge to v
 			out.get(u).remove(v);
@@ -96,6 +96,7 @@ public class AdjacencyMapGraph<V,E> implements Graph<V,E> {
 	}
 
 	public void removeDirected(V u, V v) {
+		if (out.get(u).containsKey(v)) numEdges--;
 		in.get(v).remove(u);
 		out.get(u).remove(v);
 	}
@@ -9,10 +9,13 @@ import java.util.*;
  */
 public class BaconGame
 {
-    Graph<String, Set<String>> graph = new AdjacencyMapGraph<>(); //the graph with vertex as actors and edge as set of movies
+    Graph<String, Set<String>> graph = new DegreeIndexedGraph<>(); //the graph with vertex as actors and edge as set of movies (kept ordered by degree)
     HashMap<String, String> actorIDMap = new HashMap<>(); //map for actorID -> actorName
     HashMap<String, String> movieIDMap = new HashMap<>(); //map for movieID -> movieName
     HashMap<String, Set<String>> movieToActorsMap = new HashMap<>(); //map for movieID -> set of actorIDs that appear in movie
+    EdgeYearIndex<Set<String>> yearIndex; //movies on each edge sorted by release year, built along with the graph
+    ShardedBfs sharded; //shard processes holding the graph instead of this JVM (null when running in one process)
+    boolean shardsLost = false; //whether a shard process failed, which ends the game
 
     String centerOfUniverse = "Kevin Bacon"; //start with center of universe as Kevin Bacon
 
@@ -120,6 +123,45 @@ public class BaconGame
                 }
             }
         }
+
+        yearIndex = new EdgeYearIndex<>(graph, movies -> movies); //sort each edge's movies by release year, parsed once
+    }
+
+    /**
+     * Method to replace the built graph with a read-only copy whose adjacency is kept off the heap
+     * @param graphFile - file to map the adjacency into (other JVMs can map the same copy), or null for direct memory
+     * @throws IOException
+     */
+    public void moveGraphOffHeap(String graphFile) throws IOException
+    {
+        if (graphFile == null) graph = new OffHeapGraph<>(graph); //copy the graph into direct memory
+        else graph = new OffHeapGraph<>(graph, graphFile); //copy the graph into the memory-mapped file
+
+        //the year index holds on to every original edge label, so rebuild it over the off-heap copy's labels
+        yearIndex = new EdgeYearIndex<>(graph, movies -> movies);
+    }
+
+    /**
+     * Method to use a graph file written by moveGraphOffHeap (e.g., by another JVM) instead of building the graph
+     * @param graphFile - file to map read-only; it is never rebuilt or rewritten
+     * @throws IOException
+     */
+    public void openGraphOffHeap(String graphFile) throws IOException
+    {
+        graph = OffHeapGraph.open(graphFile); //map the existing copy
+        yearIndex = new EdgeYearIndex<>(graph, movies -> movies); //sort each edge's movies by release year, parsed once
+    }
+
+    /**
+     * Method to report that talking to the shard processes failed, stop them and end the game (the graph is gone with them)
+     * @param e - the failure
+     */
+    public void shardsFailed(IOException e)
+    {
+        System.out.println("Lost the shard processes (" + e + "), so the game has to stop");
+        sharded.close(); //stop whatever shards are left
+        sharded = null;
+        shardsLost = true; //main stops asking for commands
     }
 
     /**
@@ -134,6 +176,20 @@ public class BaconGame
             System.out.print("Please enter name of an actor: ");
             String actor = inp.nextLine(); //read the user input of actorName
 
+            if (baconGame.sharded != null) //if the graph is split across shard processes
+            {
+                baconGame.sharded.bfs(baconGame.centerOfUniverse); //do BFS across the shards with the center of the universe
+                PathQueries.Result<String, Set<String>> result = baconGame.sharded.getPath(actor); //ask the shards for the path back to the center
+                if (result.number < 0) throw new IllegalArgumentException(actor + " isn't connected"); //not a valid actor to find a path from
+
+                System.out.println(actor + "'s number is " + result.number); //print out the actors kevin bacon number
+                for (int i = 0; i < result.number; i++) //for each edge in the shortest path
+                {
+                    System.out.println(result.path.get(i) + " appeared in " + result.labels.get(i) + " with " + result.path.get(i + 1));
+                }
+                return;
+            }
+
             //do BFS on the graph with the center of the universe
             Graph<String, Set<String>> shortPath = GraphLib.bfs(baconGame.graph, baconGame.centerOfUniverse);
             List<String> path = GraphLib.getPath(shortPath, actor); //get the shortest path from the actor(user input) back to center of universe
@@ -147,6 +203,9 @@ public class BaconGame
                 res += res + path.get(i) + " appeared in " + baconGame.graph.getLabel(path.get(i), path.get(i + 1)) + " with " + path.get(i + 1);
                 System.out.println(res);
             }
+        }catch (IOException e) //catch exception if the shards failed
+        {
+            baconGame.shardsFailed(e);
         }catch (Exception e) //catch exception if not valid actor name / not possible bfs
         {
             System.out.println("Please enter a valid name of an actor!");
@@ -154,6 +213,45 @@ public class BaconGame
 
     }
 
+    /**
+     * method to find the shortest path from <name> to current center of the universe using only movies released in a range of years
+     * @param baconGame - the instantiated baconGame object
+     */
+    public void findPathInYears(BaconGame baconGame)
+    {
+        try
+        {
+            Scanner inp = new Scanner(System.in); //instantiate user input
+            System.out.print("Please enter name of an actor: ");
+            String actor = inp.nextLine(); //read the user input of actorName
+            System.out.print("Please enter the first and last year: ");
+            int fromYear = inp.nextInt(); //read the first year of movies to use
+            int toYear = inp.nextInt(); //read the last year of movies to use
+
+            //do BFS on the graph with the center of the universe, skipping edges with no movie in the years
+            List<String> path = GraphLib.getPath(baconGame.graph, baconGame.centerOfUniverse, actor, baconGame.yearIndex, fromYear, toYear);
+            if (path.isEmpty()) //if the actor can't reach the center with movies from those years
+            {
+                System.out.println(actor + " isn't connected to " + baconGame.centerOfUniverse + " by movies from " + fromYear + " to " + toYear);
+                return;
+            }
+
+            System.out.println(actor + "'s number from " + fromYear + " to " + toYear + " is " + (path.size() - 1));
+
+            for (int i = 0; i < path.size() - 1; i++) //for each index in the shortest path list
+            {
+                //only the movies on the edge released in the years, earliest first
+                List<String> movies = baconGame.yearIndex.moviesInRange(baconGame.graph.getLabel(path.get(i), path.get(i + 1)), fromYear, toYear);
+                //print the chain of movies the actor appeared in back to the center of the universe
+                System.out.println(path.get(i) + " appeared in " + movies + " with " + path.get(i + 1));
+            }
+        }catch (Exception e) //catch exception if not valid actor name / years
+        {
+            System.out.println("Please enter a valid name of an actor and years!");
+        }
+
+    }
+
     /**
      * Method to make a new actor the center of the universe
      * @param baconGame
@@ -168,6 +266,16 @@ public class BaconGame
             String newCenterOfUniverse = inp.nextLine(); //get the name of actor from user input
             baconGame.centerOfUniverse = newCenterOfUniverse; //update the center of the universe to the new actor
 
+            if (baconGame.sharded != null) //if the graph is split across shard processes
+            {
+                int reached = baconGame.sharded.bfs(baconGame.centerOfUniverse); //do BFS across the shards with the new center
+                double avgSep = baconGame.sharded.averageSeparation(); //get the average separation of the new center of the universe
+
+                System.out.println(centerOfUniverse + " is now the center of the acting universe, connected to "
+                        + (reached - 1) + "/" + baconGame.sharded.numVertices() + " with average separation " + avgSep);
+                return;
+            }
+
             //get the shortest path using BFS with the new center of the universe
             Graph<String, Set<String>> shortPath = GraphLib.bfs(baconGame.graph, baconGame.centerOfUniverse);
 
@@ -179,6 +287,8 @@ public class BaconGame
 
             //print out the new center of universe with connected numbers of actors and average of separation
             System.out.println(res);
+        } catch (IOException e){ //catch exception if the shards failed
+            baconGame.shardsFailed(e);
         } catch (Exception e){ //catch exception if trying to make non-existent actor center of universe
             System.out.println("Please enter a valid actor name!");
         }
@@ -191,6 +301,20 @@ public class BaconGame
      */
     public void infiniteSeparation(BaconGame baconGame)
     {
+        if (baconGame.sharded != null) //if the graph is split across shard processes
+        {
+            try
+            {
+                baconGame.sharded.bfs(baconGame.centerOfUniverse); //do BFS across the shards with the center of universe
+                Set<String> missing = baconGame.sharded.missingVertices(); //those the shards didn't reach
+                System.out.print("Actors with infinite separation from the current center " + baconGame.centerOfUniverse + " are: ");
+                System.out.println(missing);
+            } catch (IOException e){ //catch exception if the shards failed
+                baconGame.shardsFailed(e);
+            }
+            return;
+        }
+
         //get the shortest path using BFS with the center of universe
         Graph<String, Set<String>> shortPath = GraphLib.bfs(baconGame.graph, baconGame.centerOfUniverse);
 
@@ -210,6 +334,23 @@ public class BaconGame
 
         ArrayList<String> sortActorByKB = new ArrayList<>(); //list to sort actors by kevin bacon number
 
+        if (baconGame.sharded != null) //if the graph is split across shard processes
+        {
+            try
+            {
+                baconGame.sharded.bfs(baconGame.centerOfUniverse); //do BFS across the shards with the center of universe
+                for (Set<String> actors : baconGame.sharded.byNumber().values()) //each shard reports the numbers of its own actors
+                {
+                    sortActorByKB.addAll(actors); //add everything in the set to the list (lowest number first)
+                }
+            } catch (IOException e){ //catch exception if the shards failed
+                baconGame.shardsFailed(e);
+                return;
+            }
+            System.out.println("List of actors sorted by Kevin Bacon number low to high: " + sortActorByKB);
+            return;
+        }
+
         //get the shortest path tree by bfs
         Graph<String, Set<String>> shortPath = GraphLib.bfs(baconGame.graph, baconGame.centerOfUniverse);
 
@@ -297,8 +438,8 @@ public class BaconGame
     {
         try
         {
-            //get the list of vertices sorted by in degree in decreasing order
-            List<String> sortedByInDegree = GraphLib.verticesByInDegree(baconGame.graph);
+            //get the top k vertices sorted by in degree in decreasing order
+            List<String> sortedByInDegree = GraphLib.topByInDegree(baconGame.graph, k);
 
             System.out.println("Top " + k + " centers of the universe sorted by degree (number of costars): \t");
 
@@ -313,11 +454,41 @@ public class BaconGame
 
     public static void main(String[] args) throws IOException
     {
+        String actorFile = "/Users/sajjadck/IdeaProjects/PS4/src/actors.txt";
+        String movieFile = "/Users/sajjadck/IdeaProjects/PS4/src/movies.txt";
+        String movieToActorFile = "/Users/sajjadck/IdeaProjects/PS4/src/movie-actors.txt";
+
+        //arguments: <shards> to split the graph across that many processes, --off-heap[=<file>] to keep it off the heap,
+        //or --off-heap-open=<file> to map a file written by --off-heap=<file> instead of building the graph
+        Integer shards = null; //number of shard processes, if sharded
+        boolean offHeap = false; //whether to move the graph off the heap once it is built
+        String offHeapFile = null; //file to map the off-heap graph into (null for direct memory)
+        String openFile = null; //existing graph file to map read-only, if any
+        for (String arg : args) //for each command line argument
+        {
+            if (arg.equals("--off-heap")) offHeap = true;
+            else if (arg.startsWith("--off-heap-open=")) openFile = arg.substring("--off-heap-open=".length());
+            else if (arg.startsWith("--off-heap="))
+            {
+                offHeap = true;
+                offHeapFile = arg.substring("--off-heap=".length());
+            }
+            else shards = Integer.parseInt(arg);
+        }
+
         BaconGame baconGame = new BaconGame(); //instantiate a new bacon game
-        baconGame.buildActorIDMap("/Users/sajjadck/IdeaProjects/PS4/src/actors.txt");
-        baconGame.buildMovieIDMap("/Users/sajjadck/IdeaProjects/PS4/src/movies.txt");
-        baconGame.buildMovieToActor("/Users/sajjadck/IdeaProjects/PS4/src/movie-actors.txt");
-        baconGame.buildGraph(); //build the graph
+        if (shards != null) //if given a number of shards, split the graph across that many processes instead of building it here
+        {
+            baconGame.sharded = new ShardedBfs(shards, actorFile, movieFile, movieToActorFile);
+        } else if (openFile != null) { //if given an existing graph file, map it instead of building the graph
+            baconGame.openGraphOffHeap(openFile);
+        } else {
+            baconGame.buildActorIDMap(actorFile);
+            baconGame.buildMovieIDMap(movieFile);
+            baconGame.buildMovieToActor(movieToActorFile);
+            baconGame.buildGraph(); //build the graph
+            if (offHeap) baconGame.moveGraphOffHeap(offHeapFile); //copy it off the heap and drop the on-heap one
+        }
 
         Scanner userInput = new Scanner(System.in); //instantiate scanner for user input
         String character = ""; //character to hold user input
@@ -328,21 +499,31 @@ public class BaconGame
                 "b <low> <high>: list actors sorted by Kevin Bacon number low to high\n" +
                 "i: list actors with infinite separation from the current center\n" +
                 "p <name>: find path from <name> to current center of the universe\n" +
+                "t <name> <first> <last>: find path from <name> to current center of the universe using only movies released from <first> to <last>\n" +
                 "d <#>: list top (positive number) <#> centers of the universe, sorted by degree (number of costars)\n" +
                 "u <name>: make <name> the center of the universe\n" +
                 "q: quit game\n");
 
         System.out.println(baconGame.centerOfUniverse + " is now the center of the acting universe");
 
-        while (!character.equals("q")) //while the character input isn't q (quit game)
+        while (!character.equals("q") && !baconGame.shardsLost) //while the character input isn't q (quit game) and the shards are still there
         {
             System.out.print("Choose a command: "); //prompt to choose a command
             character = userInput.nextLine(); //get the user input
 
+            if (baconGame.sharded != null && (character.equals("c") || character.equals("d") || character.equals("t")))
+            {
+                System.out.println("Only p, u, i and b are available when the graph is sharded"); //these need the whole graph
+                continue;
+            }
             if (character.equals("p")) //if command p
             {
                 baconGame.findPath(baconGame); //find path from <name> to current center of the universe
             }
+            else if (character.equals("t")) //if command t
+            {
+                baconGame.findPathInYears(baconGame); //find path from <name> to current center of the universe within a range of years
+            }
             else if (character.equals("u")) //if command u
             {
                baconGame.makeCenterOfUniverse(baconGame); //make <name> the center of the universe
@@ -379,6 +560,7 @@ public class BaconGame
         }
 
         System.out.println("Game is over"); //game has finished
+        if (baconGame.sharded != null) baconGame.sharded.close(); //stop the shard processes
         userInput.close(); //close user input
     }
 }
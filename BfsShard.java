@@ -0,0 +1,238 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * One shard of a partitioned co-star graph, run as its own JVM process by ShardedBfs
+ * The shard owns the actors whose names hash to its index, and keeps only their edges (the co-stars at the
+ * other end are stub vertices, owned by whichever shard they hash to). For a BFS it keeps the visited
+ * state, depth and parent of its own actors; the coordinator sends it the candidate (vertex, parent) pairs
+ * for each level and it answers with the candidates for the next level.
+ *
+ * Messages are DataOutputStream ints and UTF strings over a loopback socket: the command code, its arguments,
+ * then the reply (see the handlers below).
+ *
+ * @author Sajjad
+ */
+public class BfsShard {
+	static final int BFS = 1;				// reset for a new BFS
+	static final int FRONTIER = 2;			// pairs in -> count newly visited, pairs for the next level out
+	static final int PARENT = 3;			// vertex in -> visited, has parent, parent, movies on the edge to it
+	static final int NUMBERS = 4;			// -> visited vertices and their depths
+	static final int MISSING = 5;			// -> vertices not visited
+	static final int PARENTS = 6;			// -> distinct parents of visited vertices
+	static final int CHILDREN = 7;			// vertices in: mark them as having a child in the tree
+	static final int LEAF_SEPARATION = 8;	// -> sum of depth*(depth+1)/2 over visited vertices with no children
+	static final int QUIT = 9;
+
+	private final int index, numShards;
+	private final Graph<String, Set<String>> graph = new AdjacencyMapGraph<>();	// owned actors' edges, co-stars as stubs
+	private final Set<String> owned = new HashSet<>();						// actors this shard owns
+	private final Map<String, String> parent = new HashMap<>();				// visited actor -> parent (null for the center)
+	private final Map<String, Integer> depth = new HashMap<>();				// visited actor -> Bacon number
+	private final Set<String> hasChild = new HashSet<>();					// visited actors that are parents in the tree
+	private int level;														// depth of the next frontier
+
+	public BfsShard(int index, int numShards) {
+		this.index = index;
+		this.numShards = numShards;
+	}
+
+	/**
+	 * Shard that owns a vertex
+	 */
+	static int owner(String vertex, int numShards) {
+		return Math.floorMod(vertex.hashCode(), numShards);
+	}
+
+	/**
+	 * The smaller of two candidate parents: the tie-break GraphLib.bfs uses, so the trees match
+	 */
+	static String smaller(String p1, String p2) {
+		return p1.compareTo(p2) <= 0 ? p1 : p2;
+	}
+
+	/**
+	 * Reads the movie files, keeping the edges of the actors this shard owns
+	 * (same files and the same edges as BaconGame.buildGraph, restricted to owned actors)
+	 */
+	public void load(String actorFile, String movieFile, String movieToActorFile) throws IOException {
+		Map<String, String> actorIDMap = new HashMap<>();
+		try (BufferedReader input = new BufferedReader(new FileReader(actorFile))) {
+			String line;
+			while ((line = input.readLine()) != null) {
+				String[] l = line.split("\\|");
+				actorIDMap.put(l[0], l[1]);
+				if (owner(l[1], numShards) == index && owned.add(l[1])) graph.insertVertex(l[1]);
+			}
+		}
+
+		Map<String, String> movieIDMap = new HashMap<>();
+		try (BufferedReader input = new BufferedReader(new FileReader(movieFile))) {
+			String line;
+			while ((line = input.readLine()) != null) {
+				String[] l = line.split("\\|");
+				movieIDMap.put(l[0], l[1]);
+			}
+		}
+
+		Map<String, Set<String>> movieToActorsMap = new HashMap<>();
+		try (BufferedReader input = new BufferedReader(new FileReader(movieToActorFile))) {
+			String line;
+			while ((line = input.readLine()) != null) {
+				String[] l = line.split("\\|");
+				movieToActorsMap.computeIfAbsent(l[0], m -> new HashSet<>()).add(l[1]);
+			}
+		}
+
+		for (Map.Entry<String, Set<String>> entry : movieToActorsMap.entrySet()) {
+			String movieName = movieIDMap.get(entry.getKey());
+			for (String actor1 : entry.getValue()) {
+				String actor1Name = actorIDMap.get(actor1);
+				if (!owned.contains(actor1Name)) continue;
+				for (String actor2 : entry.getValue()) {
+					if (actor1.equals(actor2)) continue;
+					String actor2Name = actorIDMap.get(actor2);
+					graph.insertVertex(actor2Name);		// no-op if owned or already a stub
+					if (!graph.hasEdge(actor1Name, actor2Name)) graph.insertDirected(actor1Name, actor2Name, new HashSet<>());
+					graph.getLabel(actor1Name, actor2Name).add(movieName);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serves the coordinator's commands until it quits
+	 */
+	public void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		while (true) {
+			int command = in.readInt();
+			switch (command) {
+				case BFS:
+					parent.clear();
+					depth.clear();
+					hasChild.clear();
+					level = 0;
+					break;
+				case FRONTIER:
+					frontier(in, out);
+					break;
+				case PARENT: {
+					String v = in.readUTF();
+					boolean visited = depth.containsKey(v);
+					String p = parent.get(v);
+					out.writeBoolean(visited);
+					out.writeBoolean(p != null);
+					if (p != null) {
+						out.writeUTF(p);
+						writeStrings(out, graph.getLabel(v, p));
+					}
+					break;
+				}
+				case NUMBERS:
+					out.writeInt(depth.size());
+					for (Map.Entry<String, Integer> entry : depth.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeInt(entry.getValue());
+					}
+					break;
+				case MISSING: {
+					List<String> missing = new ArrayList<>();
+					for (String v : owned) if (!depth.containsKey(v)) missing.add(v);
+					writeStrings(out, missing);
+					break;
+				}
+				case PARENTS: {
+					Set<String> parents = new HashSet<>(parent.values());
+					parents.remove(null);		// the center
+					writeStrings(out, parents);
+					break;
+				}
+				case CHILDREN:
+					hasChild.addAll(readStrings(in));
+					break;
+				case LEAF_SEPARATION: {
+					long sum = 0;
+					for (Map.Entry<String, Integer> entry : depth.entrySet()) {
+						long d = entry.getValue();
+						if (!hasChild.contains(entry.getKey())) sum += d * (d + 1) / 2;
+					}
+					out.writeLong(sum);
+					break;
+				}
+				case QUIT:
+					return;
+				default:
+					throw new IOException("Unknown command " + command);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * One BFS level: visits the candidates this shard hasn't seen, and returns their unvisited neighbors
+	 * paired with them as parents (each neighbor once, with its smallest parent, as GraphLib.bfs picks)
+	 */
+	private void frontier(DataInputStream in, DataOutputStream out) throws IOException {
+		List<String> visitedNow = new ArrayList<>();
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			String v = in.readUTF();
+			String p = in.readBoolean() ? in.readUTF() : null;
+			if (owned.contains(v) && !depth.containsKey(v)) {
+				depth.put(v, level);
+				parent.put(v, p);
+				visitedNow.add(v);
+			}
+		}
+		level++;
+
+		Map<String, String> candidates = new HashMap<>();		// neighbor -> smallest parent
+		for (String u : visitedNow) {
+			for (String w : graph.outNeighbors(u)) {
+				if (owned.contains(w) && depth.containsKey(w)) continue;	// known visited here
+				candidates.merge(w, u, BfsShard::smaller);
+			}
+		}
+
+		out.writeInt(visitedNow.size());
+		out.writeInt(candidates.size());
+		for (Map.Entry<String, String> entry : candidates.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+	}
+
+	static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String s : strings) out.writeUTF(s);
+	}
+
+	static List<String> readStrings(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		List<String> strings = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) strings.add(in.readUTF());
+		return strings;
+	}
+
+	/**
+	 * Entry point for a shard process
+	 * Usage: BfsShard port index numShards actors movies movie-actors
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = Integer.parseInt(args[0]);
+		BfsShard shard = new BfsShard(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		shard.load(args[3], args[4], args[5]);
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(shard.index);		// hello: which shard this is, and how many actors it owns
+			out.writeInt(shard.owned.size());
+			out.flush();
+			shard.serve(in, out);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+import java.util.*;
+
+/**
+ * Adjacency map graph that also keeps its vertices ordered by in-degree
+ * Each vertex gets an id with entries in the degree arrays, and the ids are kept in one array sorted by
+ * decreasing in-degree, as in a counting sort: above[d] is the number of vertices with in-degree > d, so
+ * vertices with in-degree d are at positions above[d]..above[d-1]-1. When an edge changes a vertex's in-degree
+ * by one, the vertex swaps with the edge of its bucket and the bucket boundary moves, so every update is O(1)
+ * and the top k vertices by degree are just the first k ids.
+ *
+ * @author Sajjad
+ */
+public class DegreeIndexedGraph<V,E> extends AdjacencyMapGraph<V,E> {
+	private final Map<V, Integer> ids = new HashMap<>();		// vertex -> id
+	private final ArrayList<V> vertexTable = new ArrayList<>();	// id -> vertex (null once removed)
+	private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();	// ids of removed vertices, for reuse
+	private int[] inDeg = new int[16];			// id -> in-degree
+	private int[] outDeg = new int[16];			// id -> out-degree
+	private int[] order = new int[16];			// ids by decreasing in-degree
+	private int[] pos = new int[16];			// id -> position in order
+	private int[] above = new int[2];			// above[d] = number of vertices with in-degree > d
+	private int size;							// number of vertices in order
+
+	/**
+	 * Default constructor, creating an empty graph
+	 */
+	public DegreeIndexedGraph() {
+		super();
+	}
+
+	public int outDegree(V v) {
+		return outDeg[ids.get(v)];
+	}
+
+	public int inDegree(V v) {
+		return inDeg[ids.get(v)];
+	}
+
+	public void insertVertex(V v) {
+		if (hasVertex(v)) return;
+		super.insertVertex(v);
+
+		int id;
+		if (freeIds.isEmpty()) {
+			id = vertexTable.size();
+			vertexTable.add(v);
+			if (id == inDeg.length) {
+				inDeg = Arrays.copyOf(inDeg, 2 * id);
+				outDeg = Arrays.copyOf(outDeg, 2 * id);
+				order = Arrays.copyOf(order, 2 * id);
+				pos = Arrays.copyOf(pos, 2 * id);
+			}
+		} else {
+			id = freeIds.pop();
+			vertexTable.set(id, v);
+		}
+		ids.put(v, id);
+		inDeg[id] = 0;
+		outDeg[id] = 0;
+		order[size] = id;	// in-degree 0 is the last bucket, so no boundary moves
+		pos[id] = size++;
+	}
+
+	public void insertDirected(V u, V v, E e) {
+		boolean isNew = !hasEdge(u, v);
+		super.insertDirected(u, v, e);
+		if (isNew) {
+			outDeg[ids.get(u)]++;
+			incrementIn(ids.get(v));
+		}
+	}
+
+	public void removeVertex(V v) {
+		if (!hasVertex(v)) return;
+		int id = ids.get(v);
+		for (V u : inNeighbors(v)) { // u has an edge to v
+			if (!u.equals(v)) outDeg[ids.get(u)]--;
+		}
+		for (V w : outNeighbors(v)) { // w has an edge from v
+			if (!w.equals(v)) decrementIn(ids.get(w));
+		}
+		while (inDeg[id] > 0) decrementIn(id);	// down to the last bucket, where it can swap with the last vertex
+
+		swap(pos[id], size - 1);
+		size--;
+		ids.remove(v);
+		vertexTable.set(id, null);
+		freeIds.push(id);
+		super.removeVertex(v);
+	}
+
+	public void removeDirected(V u, V v) {
+		if (!hasEdge(u, v)) return;
+		super.removeDirected(u, v);
+		outDeg[ids.get(u)]--;
+		decrementIn(ids.get(v));
+	}
+
+	/** Moves id from in-degree bucket d to d+1 */
+	private void incrementIn(int id) {
+		int d = inDeg[id];
+		if (d + 1 >= above.length) above = Arrays.copyOf(above, 2 * (d + 1));
+		swap(pos[id], above[d]);	// first of bucket d
+		above[d]++;
+		inDeg[id]++;
+	}
+
+	/** Moves id from in-degree bucket d to d-1 */
+	private void decrementIn(int id) {
+		int d = inDeg[id];
+		swap(pos[id], above[d - 1] - 1);	// last of bucket d
+		above[d - 1]--;
+		inDeg[id]--;
+	}
+
+	private void swap(int i, int j) {
+		int a = order[i], b = order[j];
+		order[i] = b;
+		pos[b] = i;
+		order[j] = a;
+		pos[a] = j;
+	}
+
+	/**
+	 * The k vertices with the highest in-degree (or all of them, if there are fewer), largest first
+	 */
+	public List<V> topByInDegree(int k) {
+		int n = Math.min(k, size);
+		List<V> top = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) top.add(vertexTable.get(order[i]));
+		return top;
+	}
+
+	/**
+	 * All the vertices, sorted by in-degree, decreasing
+	 */
+	public List<V> verticesByInDegree() {
+		return topByInDegree(size);
+	}
+
+	/**
+	 * Number of vertices with each in-degree: histogram[d] vertices have in-degree d, up to the max in-degree
+	 */
+	public int[] inDegreeHistogram() {
+		int max = 0;
+		while (max + 1 < above.length && above[max] > 0) max++;		// above[max] == 0: nothing has in-degree > max
+		int[] histogram = new int[max + 1];
+		for (int d = 0; d <= max; d++) {
+			histogram[d] = (d == 0 ? size : above[d - 1]) - above[d];
+		}
+		return histogram;
+	}
+}
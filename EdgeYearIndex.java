@@ -0,0 +1,102 @@
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Movies on each edge of a graph sorted by release year, for traversals restricted to a range of years
+ * Years are parsed from the titles once per edge label when the index is built, and each label's movies are
+ * kept sorted by year, so checking whether an edge has a movie in a range (or listing those movies) is a
+ * binary search. Labels are looked up by identity (both directions of an undirected edge share one label),
+ * so the index should be built after the graph is and not mutated after.
+ *
+ * @author Sajjad
+ */
+public class EdgeYearIndex<E> {
+	public static final int UNKNOWN = Integer.MIN_VALUE;		// year of a movie whose title doesn't give one
+
+	private final Map<E, String[]> movies = new IdentityHashMap<>();	// edge label -> movies sorted by year, unknown years dropped
+	private final Map<E, int[]> years = new IdentityHashMap<>();		// edge label -> the release years of those movies
+
+	/**
+	 * Indexes every edge label of g
+	 * @param g			graph
+	 * @param moviesOf	titles of the movies in a label (movies without a year in the title are left out)
+	 */
+	public <V> EdgeYearIndex(Graph<V,E> g, Function<E, ? extends Collection<String>> moviesOf) {
+		for (V u : g.vertices()) {
+			for (V v : g.outNeighbors(u)) {
+				E label = g.getLabel(u, v);
+				if (movies.containsKey(label)) continue;
+
+				List<String> titles = new ArrayList<>();
+				List<Integer> released = new ArrayList<>();
+				for (String title : moviesOf.apply(label)) {
+					int year = parseYear(title);
+					if (year == UNKNOWN) continue;
+					titles.add(title);
+					released.add(year);
+				}
+				Integer[] order = new Integer[titles.size()];
+				for (int i = 0; i < order.length; i++) order[i] = i;
+				Arrays.sort(order, Comparator.comparingInt(released::get));
+
+				String[] m = new String[order.length];
+				int[] y = new int[order.length];
+				for (int i = 0; i < order.length; i++) {
+					m[i] = titles.get(order[i]);
+					y[i] = released.get(order[i]);
+				}
+				movies.put(label, m);
+				years.put(label, y);
+			}
+		}
+	}
+
+	/**
+	 * Release year from a title like "Toy Story (1995)"
+	 * @return		the year, or UNKNOWN if the title doesn't end with one
+	 */
+	public static int parseYear(String title) {
+		int end = title.length() - 1;
+		if (end < 5 || title.charAt(end) != ')' || title.charAt(end - 5) != '(') return UNKNOWN;
+		int year = 0;
+		for (int i = end - 4; i < end; i++) {
+			char c = title.charAt(i);
+			if (c < '0' || c > '9') return UNKNOWN;
+			year = 10 * year + (c - '0');
+		}
+		return year;
+	}
+
+	/**
+	 * Index of the first year >= year in y (y.length if there isn't one)
+	 */
+	private static int firstFrom(int[] y, int year) {
+		int lo = 0, hi = y.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (y[mid] < year) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Whether the label has a movie released in fromYear..toYear (inclusive)
+	 */
+	public boolean inRange(E label, int fromYear, int toYear) {
+		int[] y = years.get(label);
+		if (y == null) return false;
+		int i = firstFrom(y, fromYear);
+		return i < y.length && y[i] <= toYear;
+	}
+
+	/**
+	 * The label's movies released in fromYear..toYear (inclusive), earliest first, as a read-only view of the index
+	 */
+	public List<String> moviesInRange(E label, int fromYear, int toYear) {
+		int[] y = years.get(label);
+		if (y == null) return Collections.emptyList();
+		int from = firstFrom(y, fromYear), to = toYear == Integer.MAX_VALUE ? y.length : firstFrom(y, toYear + 1);
+		return Collections.unmodifiableList(Arrays.asList(movies.get(label)).subList(from, Math.max(from, to)));
+	}
+}
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Library for graph analysis
@@ -34,6 +35,8 @@ public class GraphLib {
 				if (neighbor != current) neighbors.add(neighbor);
 
 			}
+			if (neighbors.isEmpty()) return path; //no step can be taken (e.g., start has no out-edge)
+
 			int idx = (int) ((Math.random() * (neighbors.size())));
 
 			current = neighbors.get(idx);
@@ -54,19 +57,56 @@ public class GraphLib {
 	 * @return		list of vertices sorted by in-degree, decreasing (i.e., largest at index 0)
 	 */
 	public static <V,E> List<V> verticesByInDegree(Graph<V,E> g) {
+		if (g instanceof DegreeIndexedGraph) return ((DegreeIndexedGraph<V,E>) g).verticesByInDegree(); //already in order
 
-		ArrayList<V> vertices = new ArrayList<>();
-		for (V vertex : g.vertices())
+		int[] histogram = inDegreeHistogram(g);
+		int[] next = new int[histogram.length]; //next free index for each degree, highest degree first
+		for (int d = histogram.length - 2; d >= 0; d--)
 		{
-			vertices.add(vertex);
+			next[d] = next[d + 1] + histogram[d + 1];
 		}
 
-		vertices.sort((V v1, V v2) -> g.inDegree(v2) - g.inDegree(v1));
+		//counting sort: each vertex goes straight to the next free slot of its degree
+		ArrayList<V> vertices = new ArrayList<>(Collections.nCopies(g.numVertices(), (V) null));
+		for (V vertex : g.vertices())
+		{
+			vertices.set(next[g.inDegree(vertex)]++, vertex);
+		}
 		return vertices;
 	}
 
+	/**
+	 * The k vertices with the largest in-degree (or all of them, if there are fewer)
+	 * @param g		graph
+	 * @param k		number of vertices
+	 * @return		list of vertices sorted by in-degree, decreasing
+	 */
+	public static <V,E> List<V> topByInDegree(Graph<V,E> g, int k) {
+		if (g instanceof DegreeIndexedGraph) return ((DegreeIndexedGraph<V,E>) g).topByInDegree(k); //O(k)
+
+		List<V> vertices = verticesByInDegree(g);
+		return vertices.subList(0, Math.min(k, vertices.size()));
+	}
+
+	/**
+	 * Degree distribution of a graph
+	 * @param g		graph
+	 * @return		array where index d holds the number of vertices with in-degree d, up to the max in-degree
+	 */
+	public static <V,E> int[] inDegreeHistogram(Graph<V,E> g) {
+		if (g instanceof DegreeIndexedGraph) return ((DegreeIndexedGraph<V,E>) g).inDegreeHistogram();
+
+		int max = 0;
+		for (V vertex : g.vertices()) max = Math.max(max, g.inDegree(vertex));
+		int[] histogram = new int[max + 1];
+		for (V vertex : g.vertices()) histogram[g.inDegree(vertex)]++;
+		return histogram;
+	}
+
 	/**
 	 * BFS to find the shortest path tree for a current center of the universe
+	 * When a vertex is equally close to several parents, it hangs off the smallest of them (if the vertices are
+	 * Comparable), so the tree doesn't depend on the order neighbors are stored in (ShardedBfs builds the same one)
 	 * @param g - a graph
 	 * @param source - starting vertex
 	 * @return - returns a path tree as a graph
@@ -75,29 +115,45 @@ public class GraphLib {
 	 */
 	public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source)
 	{
-		Queue<V> queue = new LinkedList<>(); //queue to keep track of BFS
-		HashSet<V> visited = new HashSet<>(); //set to keep track of visited vertices
-		HashMap<V, V> path = new HashMap<>(); //map to backtrack the path
+		return bfs(g, source, null);
+	}
+
+	/**
+	 * BFS to find the shortest path tree for a current center of the universe, following only some of the edges
+	 * @param g - a graph
+	 * @param source - starting vertex
+	 * @param useEdge - test on the edge label of whether an edge may be followed (null to follow all of them)
+	 * @return - returns a path tree as a graph
+	 * @param <V>
+	 * @param <E>
+	 */
+	public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source, Predicate<E> useEdge)
+	{
+		List<V> frontier = new ArrayList<>(); //vertices of the current level
+		HashMap<V, V> path = new HashMap<>(); //map to backtrack the path (its keys are the visited vertices)
 		Graph<V,E> pathGraph = new AdjacencyMapGraph<>();
 
-		queue.add(source); //enqueue the start vertex
-		visited.add(source); //set it to visited
+		frontier.add(source); //start from the source
 		path.put(source, null); //add the source to map -> value null
 
-		while(!queue.isEmpty()) //while queue not empty
+		while (!frontier.isEmpty()) //while the last level reached anything
 		{
-			V u = queue.remove(); //dequeue a vertex
+			HashMap<V, V> next = new HashMap<>(); //vertices of the next level -> their parent so far
 
-			for (V vertex : g.outNeighbors(u)) //for every adjacent vertex V to U
+			for (V u : frontier) //for every vertex U of the level
 			{
-				if (!visited.contains(vertex)) //if that neighbor vertex is not visited
+				for (V vertex : g.outNeighbors(u)) //for every adjacent vertex V to U
 				{
-
-					queue.add(vertex); //enqueue the vertex
-					visited.add(vertex); //set it to visited
-					path.put(vertex, u ); //add to backtrack map with key as neighbor and value as current vertex
+					if (!path.containsKey(vertex) && (useEdge == null || useEdge.test(g.getLabel(u, vertex)))) //if that neighbor vertex is not visited (and the edge may be used)
+					{
+						V parent = next.get(vertex);
+						if (parent == null || precedes(u, parent)) next.put(vertex, u); //keep the smallest parent
+					}
 				}
 			}
+
+			path.putAll(next); //visit the level
+			frontier = new ArrayList<>(next.keySet());
 		}
 
 		HashSet<V> vertexCheck = new HashSet<>(); //set to make sure that vertex is not yet created in path graph
@@ -127,6 +183,51 @@ public class GraphLib {
 		return pathGraph; //return the new graph
 	}
 
+	/**
+	 * Whether u comes before v in the vertices' natural order (never, if they don't have one)
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> boolean precedes(V u, V v)
+	{
+		return u instanceof Comparable && ((Comparable<Object>) u).compareTo(v) < 0;
+	}
+
+	/**
+	 * BFS using only the edges with a movie released in a range of years, e.g., the universe as of a given year
+	 * @param g - a graph
+	 * @param source - starting vertex
+	 * @param years - release years of the graph's edges
+	 * @param fromYear - first year included
+	 * @param toYear - last year included
+	 * @return - returns a path tree as a graph
+	 * @param <V>
+	 * @param <E>
+	 */
+	public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source, EdgeYearIndex<E> years, int fromYear, int toYear)
+	{
+		return bfs(g, source, label -> years.inRange(label, fromYear, toYear)); //skip edges with no movie in range
+	}
+
+	/**
+	 *
+	 * @param g - a graph
+	 * @param source - the center of the universe
+	 * @param v - a given vertex
+	 * @param years - release years of the graph's edges
+	 * @param fromYear - first year included
+	 * @param toYear - last year included
+	 * @return - a path from the vertex back to the center using only movies in the range of years; empty if there isn't one
+	 * @param <V>
+	 * @param <E>
+	 */
+	public static <V,E> List<V> getPath(Graph<V,E> g, V source, V v, EdgeYearIndex<E> years, int fromYear, int toYear)
+	{
+		Graph<V,E> tree = bfs(g, source, years, fromYear, toYear); //shortest path tree within the years
+		if (!tree.hasVertex(v)) return new ArrayList<>(); //not connected within the years
+
+		return getPath(tree, v);
+	}
+
 	/**
 	 *
 	 * @param tree - the shortest path tree graph returned by bfs
@@ -0,0 +1,307 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Read-only implementation of the Graph interface with the adjacency kept off the Java heap
+ * Vertices are numbered 0..n-1 and edges are stored in compressed sparse row form:
+ * the out-edges of vertex i are at positions outOffsets[i]..outOffsets[i+1] of the neighbor and label id arrays,
+ * with neighbor ids sorted so that hasEdge/getLabel can binary search (in-edges are stored the same way)
+ * Only the vertex table and the table of distinct edge labels stay on the heap, so the size of the
+ * adjacency does not add to GC work; when built with a file, the arrays are memory-mapped and other
+ * JVMs on the host can map the same file (and share it through the page cache) with open()
+ *
+ * File layout (ints, native byte order): magic, n, m, number of labels, outOffsets[n+1], outNeighbors[m], outLabels[m], inOffsets[n+1], inNeighbors[m],
+ * followed by the serialized vertex and label tables (so vertices and labels must be Serializable to use a file)
+ * Files are written to a temporary file and atomically renamed into place, so a JVM that has the old file mapped
+ * keeps reading the old copy instead of seeing it truncated or rewritten underneath it
+ *
+ * @author Sajjad
+ */
+public class OffHeapGraph<V,E> implements Graph<V,E> {
+	private static final int MAGIC = 0x42434e47;	// "BCNG"
+	private static final int HEADER = 4;			// magic, n, m, number of labels
+
+	private final List<V> vertexTable;		// vertex id -> vertex
+	private final Map<V, Integer> ids;		// vertex -> vertex id
+	private final List<E> labelTable;		// label id -> label
+	private final IntBuffer data;			// the off-heap arrays, addressed through the bases below
+	private final int n, m;
+	private final int outOffsets, outNeighbors, outLabels, inOffsets, inNeighbors;
+
+	/**
+	 * Copies g into direct (off-heap) memory
+	 */
+	public OffHeapGraph(Graph<V,E> g) {
+		this(g, ByteBuffer.allocateDirect(Integer.BYTES * (int) size(g.numVertices(), g.numEdges())));
+	}
+
+	/**
+	 * Copies g into a memory-mapped file, which can then be shared through open()
+	 * An existing file is replaced (atomically), never rewritten in place
+	 */
+	public OffHeapGraph(Graph<V,E> g, String file) throws IOException {
+		this(g, Paths.get(file), tempFile(file));
+	}
+
+	private OffHeapGraph(Graph<V,E> g, Path file, Path temp) throws IOException {
+		this(g, map(temp, Integer.BYTES * size(g.numVertices(), g.numEdges())));
+		try {
+			try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile(), true)))) {
+				output.writeObject(vertexTable);
+				output.writeObject(labelTable);
+			}
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	private OffHeapGraph(Graph<V,E> g, ByteBuffer buffer) {
+		vertexTable = new ArrayList<>(g.numVertices());
+		ids = new HashMap<>();
+		for (V v : g.vertices()) {
+			ids.put(v, vertexTable.size());
+			vertexTable.add(v);
+		}
+		labelTable = new ArrayList<>();
+		Map<E, Integer> labelIds = new HashMap<>();		// equal labels are stored once
+
+		n = vertexTable.size();
+		m = g.numEdges();
+		IntBuffer out = buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+		out.put(0, MAGIC);
+		out.put(1, n);
+		out.put(2, m);
+		outOffsets = HEADER;
+		outNeighbors = outOffsets + n + 1;
+		outLabels = outNeighbors + m;
+		inOffsets = outLabels + m;
+		inNeighbors = inOffsets + n + 1;
+
+		// out-edges, sorted by neighbor id within each vertex (packed as neighbor << 32 | label so one sort does both)
+		int[] inCount = new int[n + 1];
+		int e = 0;
+		for (int u = 0; u < n; u++) {
+			out.put(outOffsets + u, e);
+			V vertex = vertexTable.get(u);
+			long[] edges = new long[g.outDegree(vertex)];
+			int k = 0;
+			for (V neighbor : g.outNeighbors(vertex)) {
+				E label = g.getLabel(vertex, neighbor);
+				Integer labelId = labelIds.get(label);
+				if (labelId == null) {
+					labelId = labelTable.size();
+					labelIds.put(label, labelId);
+					labelTable.add(label);
+				}
+				edges[k++] = ((long) ids.get(neighbor) << 32) | labelId;
+			}
+			Arrays.sort(edges);
+			for (long edge : edges) {
+				int v = (int) (edge >>> 32);
+				out.put(outNeighbors + e, v);
+				out.put(outLabels + e, (int) edge);
+				inCount[v + 1]++;
+				e++;
+			}
+		}
+		out.put(outOffsets + n, e);
+		out.put(3, labelTable.size());
+
+		// in-edges, filled in increasing source order so each list comes out sorted
+		for (int v = 0; v < n; v++) inCount[v + 1] += inCount[v];
+		for (int v = 0; v <= n; v++) out.put(inOffsets + v, inCount[v]);
+		for (int u = 0; u < n; u++) {
+			for (int i = out.get(outOffsets + u); i < out.get(outOffsets + u + 1); i++) {
+				int v = out.get(outNeighbors + i);
+				out.put(inNeighbors + inCount[v]++, u);
+			}
+		}
+		data = out.asReadOnlyBuffer();
+	}
+
+	private OffHeapGraph(IntBuffer data, List<V> vertexTable, List<E> labelTable) {
+		if (data.limit() < HEADER || data.get(0) != MAGIC)
+			throw new IllegalArgumentException("Not an off-heap graph file");
+		this.data = data;
+		this.vertexTable = new ArrayList<>(vertexTable);
+		this.labelTable = new ArrayList<>(labelTable);
+		n = data.get(1);
+		m = data.get(2);
+		if (n != vertexTable.size() || data.get(3) != labelTable.size() || data.limit() < size(n, m))
+			throw new IllegalArgumentException("Graph file doesn't match its vertex and label tables");
+		ids = new HashMap<>();
+		for (int i = 0; i < n; i++) ids.put(vertexTable.get(i), i);
+		outOffsets = HEADER;
+		outNeighbors = outOffsets + n + 1;
+		outLabels = outNeighbors + m;
+		inOffsets = outLabels + m;
+		inNeighbors = inOffsets + n + 1;
+	}
+
+	/**
+	 * Maps a file written by the file constructor (e.g., by another JVM), read-only, without rebuilding anything
+	 * The arrays and the tables are read through one open file, so a concurrent replacement can't mix two versions
+	 * @param file		graph file
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V,E> OffHeapGraph<V,E> open(String file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < Integer.BYTES * HEADER) throw new IllegalArgumentException("Not an off-heap graph file");
+			IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Integer.BYTES * HEADER).order(ByteOrder.nativeOrder()).asIntBuffer();
+			if (header.get(0) != MAGIC) throw new IllegalArgumentException("Not an off-heap graph file");
+			long bytes = Integer.BYTES * size(header.get(1), header.get(2));
+			if (channel.size() < bytes) throw new IllegalArgumentException("Graph file is truncated");
+
+			IntBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+			channel.position(bytes);
+			ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			List<V> vertexTable = (List<V>) input.readObject();
+			List<E> labelTable = (List<E>) input.readObject();
+			return new OffHeapGraph<>(data, vertexTable, labelTable);	// the mappings stay valid after the file is closed
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Can't read the tables of " + file, e);
+		}
+	}
+
+	/** Number of ints needed to store a graph with n vertices and m edges */
+	private static long size(int n, int m) {
+		long ints = HEADER + 2L * (n + 1) + 3L * m;
+		if (ints > Integer.MAX_VALUE / Integer.BYTES)
+			throw new IllegalArgumentException("Graph too large to map: " + n + " vertices, " + m + " edges");
+		return ints;
+	}
+
+	/** New empty file next to file, to write into before renaming it over file */
+	private static Path tempFile(String file) throws IOException {
+		Path path = Paths.get(file).toAbsolutePath();
+		return Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+	}
+
+	/** Maps a new file read-write with the given size */
+	private static ByteBuffer map(Path file, long bytes) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.setLength(bytes);
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);	// the mapping stays valid after the file is closed
+		}
+	}
+
+	public int numVertices() {
+		return n;
+	}
+
+	public int numEdges() {
+		return m;
+	}
+
+	public Iterable<V> vertices() {
+		return Collections.unmodifiableList(vertexTable);
+	}
+
+	public boolean hasVertex(V v) {
+		return ids.containsKey(v);
+	}
+
+	public int outDegree(V v) {
+		int i = ids.get(v);
+		return data.get(outOffsets + i + 1) - data.get(outOffsets + i);
+	}
+
+	public int inDegree(V v) {
+		int i = ids.get(v);
+		return data.get(inOffsets + i + 1) - data.get(inOffsets + i);
+	}
+
+	public Iterable<V> outNeighbors(V v) {
+		int i = ids.get(v);
+		return neighbors(outNeighbors, data.get(outOffsets + i), data.get(outOffsets + i + 1));
+	}
+
+	public Iterable<V> inNeighbors(V v) {
+		int i = ids.get(v);
+		return neighbors(inNeighbors, data.get(inOffsets + i), data.get(inOffsets + i + 1));
+	}
+
+	/** Vertices whose ids are at positions from..to-1 of the neighbor array starting at base */
+	private Iterable<V> neighbors(int base, int from, int to) {
+		return () -> new Iterator<V>() {
+			int next = from;
+
+			public boolean hasNext() {
+				return next < to;
+			}
+
+			public V next() {
+				if (next >= to) throw new NoSuchElementException();
+				return vertexTable.get(data.get(base + next++));
+			}
+		};
+	}
+
+	/** Position of the edge from u to v in the out-edge arrays, or -1 if there isn't one */
+	private int findEdge(V u, V v) {
+		Integer target = ids.get(v);
+		if (target == null) return -1;
+		int i = ids.get(u);
+		int lo = data.get(outOffsets + i), hi = data.get(outOffsets + i + 1) - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int w = data.get(outNeighbors + mid);
+			if (w < target) lo = mid + 1;
+			else if (w > target) hi = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	public boolean hasEdge(V u, V v) {
+		return findEdge(u, v) >= 0;
+	}
+
+	public E getLabel(V u, V v) {
+		int e = findEdge(u, v);
+		return e < 0 ? null : labelTable.get(data.get(outLabels + e));
+	}
+
+	public void insertVertex(V v) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	public void insertDirected(V u, V v, E e) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	public void insertUndirected(V u, V v, E e) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	public void removeVertex(V v) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	public void removeDirected(V u, V v) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	public void removeUndirected(V u, V v) {
+		throw new UnsupportedOperationException("OffHeapGraph is read-only");
+	}
+
+	/**
+	 * Returns a string representation of the vertex list and sizes.
+	 */
+	public String toString() {
+		return "Vertices: " + vertexTable + "\nEdges: " + m + " (off-heap)";
+	}
+}
@@ -0,0 +1,164 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Batch answers to "path from actor to center" lookups
+ * Queries are grouped by center so that each distinct center costs one BFS however many actors ask about it,
+ * and the groups are run in parallel. Results are returned (or streamed to a sink) instead of printed.
+ *
+ * Batch files have one query per line as actor|center; results are written one per line as
+ * actor|center|number|actor|movies|costar|movies|...|center (number is -1 and the chain empty when there is no path)
+ *
+ * @author Sajjad
+ */
+public class PathQueries {
+	/**
+	 * A single lookup: path from actor to center
+	 */
+	public static class Query<V> {
+		public final V actor, center;
+
+		public Query(V actor, V center) {
+			this.actor = actor;
+			this.center = center;
+		}
+	}
+
+	/**
+	 * Answer to a query: the number (path length) and the chain path[0] = actor, labels[i] on the edge path[i] -> path[i+1], ..., center
+	 */
+	public static class Result<V,E> {
+		public final V actor, center;
+		public final int number;			// -1 if actor can't reach center
+		public final List<V> path;			// empty if there is no path
+		public final List<E> labels;
+
+		public Result(V actor, V center, List<V> path, List<E> labels) {
+			this.actor = actor;
+			this.center = center;
+			this.number = path.size() - 1;
+			this.path = path;
+			this.labels = labels;
+		}
+
+		public String toString() {
+			StringBuilder res = new StringBuilder();
+			res.append(actor).append('|').append(center).append('|').append(number);
+			for (int i = 0; i < path.size(); i++) {
+				res.append('|').append(path.get(i));
+				if (i < labels.size()) res.append('|').append(labels.get(i));
+			}
+			return res.toString();
+		}
+	}
+
+	/**
+	 * Answers all the queries, one BFS per distinct center, with the centers processed in parallel
+	 * @param g			graph
+	 * @param queries	lookups to answer
+	 * @param sink		receives each result as its group finishes (calls are serialized, in no particular order)
+	 */
+	public static <V,E> void run(Graph<V,E> g, List<Query<V>> queries, Consumer<Result<V,E>> sink) {
+		answerGroups(g, queries, results -> {
+			synchronized (sink) {
+				for (Result<V,E> result : results.values()) sink.accept(result);
+			}
+		});
+	}
+
+	/**
+	 * Answers all the queries, one BFS per distinct center, with the centers processed in parallel
+	 * @return		results in the same order as the queries
+	 */
+	public static <V,E> List<Result<V,E>> run(Graph<V,E> g, List<Query<V>> queries) {
+		List<Result<V,E>> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+		answerGroups(g, queries, group -> {
+			// groups fill disjoint slots and the list never changes size, so no locking is needed
+			for (Map.Entry<Integer, Result<V,E>> entry : group.entrySet()) results.set(entry.getKey(), entry.getValue());
+		});
+		return results;
+	}
+
+	/**
+	 * Groups the queries by center and runs the groups in parallel, handing each group's results
+	 * (keyed by index into queries, in query order) to done
+	 */
+	private static <V,E> void answerGroups(Graph<V,E> g, List<Query<V>> queries, Consumer<SortedMap<Integer, Result<V,E>>> done) {
+		Map<V, List<Integer>> byCenter = new HashMap<>();		// center -> indices of the queries to that center
+		for (int i = 0; i < queries.size(); i++) {
+			byCenter.computeIfAbsent(queries.get(i).center, c -> new ArrayList<>()).add(i);
+		}
+
+		byCenter.entrySet().parallelStream().forEach(group -> {
+			V center = group.getKey();
+			Graph<V,E> tree = g.hasVertex(center) ? GraphLib.bfs(g, center) : null;	// shared by every query in the group
+
+			SortedMap<Integer, Result<V,E>> results = new TreeMap<>();
+			for (int i : group.getValue()) {
+				results.put(i, answer(g, tree, queries.get(i)));
+			}
+			done.accept(results);
+		});
+	}
+
+	/**
+	 * The result of one query, given the shortest path tree to its center (null if the center isn't in the graph)
+	 */
+	private static <V,E> Result<V,E> answer(Graph<V,E> g, Graph<V,E> tree, Query<V> query) {
+		if (tree == null || !tree.hasVertex(query.actor))
+			return new Result<>(query.actor, query.center, new ArrayList<>(), new ArrayList<>());
+
+		List<V> path = GraphLib.getPath(tree, query.actor);
+		List<E> labels = new ArrayList<>();
+		for (int i = 0; i < path.size() - 1; i++) {
+			labels.add(g.getLabel(path.get(i), path.get(i + 1)));
+		}
+		return new Result<>(query.actor, query.center, path, labels);
+	}
+
+	/**
+	 * Reads a batch file of actor|center lines (blank lines are skipped)
+	 * @param batchFile		file path
+	 * @return				the queries in file order
+	 * @throws IOException
+	 */
+	public static List<Query<String>> readQueries(String batchFile) throws IOException {
+		List<Query<String>> queries = new ArrayList<>();
+		try (BufferedReader input = new BufferedReader(new FileReader(batchFile))) {
+			String line;
+			while ((line = input.readLine()) != null) {
+				if (line.isBlank()) continue;
+				String[] l = line.split("\\|");
+				if (l.length != 2) throw new IOException("Expected actor|center but got: " + line);
+				queries.add(new Query<>(l[0], l[1]));
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Answers a batch file against the movie files, streaming results to the output file (or stdout)
+	 * Usage: PathQueries actors movies movie-actors batch [results]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			System.err.println("Usage: PathQueries <actors> <movies> <movie-actors> <batch> [results]");
+			return;
+		}
+		BaconGame baconGame = new BaconGame();
+		baconGame.buildActorIDMap(args[0]);
+		baconGame.buildMovieIDMap(args[1]);
+		baconGame.buildMovieToActor(args[2]);
+		baconGame.buildGraph();
+
+		List<Query<String>> queries = readQueries(args[3]);
+		try (PrintWriter output = args.length > 4 ? new PrintWriter(new BufferedWriter(new FileWriter(args[4])))
+				: new PrintWriter(new OutputStreamWriter(System.out))) {
+			long start = System.nanoTime();
+			run(baconGame.graph, queries, result -> output.println(result));
+			output.flush();
+			System.err.println(queries.size() + " queries answered in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		}
+	}
+}
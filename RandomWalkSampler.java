@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Samples many random walks in parallel over a fixed snapshot of a graph
+ * The graph is copied into int arrays (vertex i's out-neighbors are neighbors[offsets[i]..offsets[i+1]-1], self-loops dropped)
+ * so each step is an O(1) indexed pick; weighted walks use a Vose alias table per vertex, also O(1) per step.
+ * Walks are written into one flat int[] (one row of steps+1 vertex ids per walk, -1 once a walk gets stuck),
+ * and each chunk of walks gets its own SplittableRandom split from the seed, so results are reproducible
+ * however the chunks are scheduled.
+ *
+ * @author Sajjad
+ */
+public class RandomWalkSampler<V,E> {
+	private static final int CHUNK = 1024;		// walks per task (and per random generator)
+
+	private final List<V> vertexTable;		// vertex id -> vertex
+	private final Map<V, Integer> ids;		// vertex -> vertex id
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final double[] prob;			// alias table: keep edge i with probability prob[i] ...
+	private final int[] alias;				// ... otherwise take edge alias[i]; both null for uniform walks
+
+	private long lastSteps;					// steps taken by the last call to walks
+	private long lastNanos;					// and how long it took
+
+	/**
+	 * Snapshot for uniform walks: each step picks an out-neighbor uniformly at random
+	 */
+	public RandomWalkSampler(Graph<V,E> g) {
+		this(g, null);
+	}
+
+	/**
+	 * Snapshot for weighted walks: each step picks an out-neighbor with probability proportional to the weight
+	 * of its edge label (e.g., Set::size to weight co-stars by number of shared movies)
+	 * @param weight	non-negative weight of an edge label, or null for uniform walks
+	 */
+	public RandomWalkSampler(Graph<V,E> g, ToDoubleFunction<E> weight) {
+		vertexTable = new ArrayList<>(g.numVertices());
+		ids = new HashMap<>();
+		for (V v : g.vertices()) {
+			ids.put(v, vertexTable.size());
+			vertexTable.add(v);
+		}
+
+		int n = vertexTable.size();
+		offsets = new int[n + 1];
+		int[] edges = new int[g.numEdges()];
+		double[] weights = weight == null ? null : new double[edges.length];
+		int e = 0;
+		for (int u = 0; u < n; u++) {
+			offsets[u] = e;
+			V vertex = vertexTable.get(u);
+			for (V neighbor : g.outNeighbors(vertex)) {
+				if (neighbor.equals(vertex)) continue;
+				if (weights != null) weights[e] = weight.applyAsDouble(g.getLabel(vertex, neighbor));
+				edges[e++] = ids.get(neighbor);
+			}
+		}
+		offsets[n] = e;
+		neighbors = Arrays.copyOf(edges, e);
+
+		if (weights == null) {
+			prob = null;
+			alias = null;
+		} else {
+			prob = new double[e];
+			alias = new int[e];
+			for (int u = 0; u < n; u++) buildAlias(weights, offsets[u], offsets[u + 1]);
+		}
+	}
+
+	/**
+	 * Vose's alias method over the edges from..to-1, so a step picks edge i with probability weights[i] / total
+	 * (falls back to uniform if all the weights are 0)
+	 */
+	private void buildAlias(double[] weights, int from, int to) {
+		int deg = to - from;
+		if (deg == 0) return;
+		double total = 0;
+		for (int i = from; i < to; i++) {
+			if (weights[i] < 0) throw new IllegalArgumentException("Negative edge weight " + weights[i]);
+			total += weights[i];
+		}
+
+		double[] scaled = new double[deg];
+		int[] small = new int[deg], large = new int[deg];
+		int ns = 0, nl = 0;
+		for (int i = 0; i < deg; i++) {
+			scaled[i] = total > 0 ? weights[from + i] * deg / total : 1;
+			if (scaled[i] < 1) small[ns++] = i;
+			else large[nl++] = i;
+		}
+		while (ns > 0 && nl > 0) {
+			int s = small[--ns], l = large[--nl];
+			prob[from + s] = scaled[s];
+			alias[from + s] = from + l;
+			scaled[l] -= 1 - scaled[s];
+			if (scaled[l] < 1) small[ns++] = l;
+			else large[nl++] = l;
+		}
+		// whatever is left is 1 up to rounding
+		while (nl > 0) {
+			int l = large[--nl];
+			prob[from + l] = 1;
+			alias[from + l] = from + l;
+		}
+		while (ns > 0) {
+			int s = small[--ns];
+			prob[from + s] = 1;
+			alias[from + s] = from + s;
+		}
+	}
+
+	/** Id of a vertex in the walk buffers */
+	public int id(V v) {
+		return ids.get(v);
+	}
+
+	/** Vertex with the given id in the walk buffers */
+	public V vertex(int id) {
+		return vertexTable.get(id);
+	}
+
+	/** Number of vertices (ids are 0..numVertices()-1) */
+	public int numVertices() {
+		return vertexTable.size();
+	}
+
+	/**
+	 * Start ids with every vertex repeated walksPerVertex times, for sampling the whole graph
+	 */
+	public int[] everyVertex(int walksPerVertex) {
+		int n = vertexTable.size();
+		int[] starts = new int[Math.multiplyExact(n, walksPerVertex)];
+		for (int i = 0; i < starts.length; i++) starts[i] = i % n;
+		return starts;
+	}
+
+	/**
+	 * Takes one walk of up to steps steps from each start, in parallel
+	 * Stops a walk early (padding its row with -1) when it reaches a vertex with no out-neighbors, including the start itself
+	 * @param starts	vertex ids to start from
+	 * @param steps		max number of steps per walk
+	 * @param seed		seed for the random generators (same seed, same walks)
+	 * @return			flat buffer where walk i is at [i*(steps+1), (i+1)*(steps+1)), beginning with starts[i]
+	 */
+	public int[] walks(int[] starts, int steps, long seed) {
+		int width = steps + 1;
+		int[] buffer = new int[Math.multiplyExact(starts.length, width)];
+		int chunks = (starts.length + CHUNK - 1) / CHUNK;
+
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom[] randoms = new SplittableRandom[chunks];
+		for (int c = 0; c < chunks; c++) randoms[c] = root.split();
+
+		long start = System.nanoTime();
+		lastSteps = IntStream.range(0, chunks).parallel().mapToLong(c -> {
+			SplittableRandom random = randoms[c];
+			long taken = 0;
+			for (int w = c * CHUNK; w < Math.min(starts.length, (c + 1) * CHUNK); w++) {
+				taken += walk(buffer, w * width, starts[w], steps, random);
+			}
+			return taken;
+		}).sum();
+		lastNanos = System.nanoTime() - start;
+		return buffer;
+	}
+
+	/**
+	 * Writes one walk into buffer starting at pos
+	 * @return		number of steps taken
+	 */
+	private int walk(int[] buffer, int pos, int current, int steps, SplittableRandom random) {
+		buffer[pos] = current;
+		for (int step = 1; step <= steps; step++) {
+			int from = offsets[current], deg = offsets[current + 1] - from;
+			if (deg == 0) {
+				Arrays.fill(buffer, pos + step, pos + steps + 1, -1);
+				return step - 1;
+			}
+			int e = from + random.nextInt(deg);
+			if (prob != null && random.nextDouble() >= prob[e]) e = alias[e];
+			current = neighbors[e];
+			buffer[pos + step] = current;
+		}
+		return steps;
+	}
+
+	/**
+	 * Converts walk i of a buffer from walks() back to vertices
+	 */
+	public List<V> walk(int[] buffer, int steps, int i) {
+		List<V> path = new ArrayList<>();
+		for (int pos = i * (steps + 1); pos < (i + 1) * (steps + 1) && buffer[pos] >= 0; pos++) {
+			path.add(vertexTable.get(buffer[pos]));
+		}
+		return path;
+	}
+
+	/** Steps taken by the last call to walks() */
+	public long lastSteps() {
+		return lastSteps;
+	}
+
+	/** Throughput of the last call to walks(), in steps/second */
+	public double stepsPerSecond() {
+		return lastNanos == 0 ? 0 : lastSteps * 1e9 / lastNanos;
+	}
+
+	/**
+	 * Reports walk throughput on the movie files
+	 * Usage: RandomWalkSampler actors movies movie-actors [walksPerVertex] [steps]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: RandomWalkSampler <actors> <movies> <movie-actors> [walksPerVertex] [steps]");
+			return;
+		}
+		BaconGame baconGame = new BaconGame();
+		baconGame.buildActorIDMap(args[0]);
+		baconGame.buildMovieIDMap(args[1]);
+		baconGame.buildMovieToActor(args[2]);
+		baconGame.buildGraph();
+		int walksPerVertex = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		int steps = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+		RandomWalkSampler<String, Set<String>> uniform = new RandomWalkSampler<>(baconGame.graph);
+		RandomWalkSampler<String, Set<String>> weighted = new RandomWalkSampler<>(baconGame.graph, Set::size);
+		int[] starts = uniform.everyVertex(walksPerVertex);
+		for (int round = 0; round < 3; round++) {	// first rounds warm up the JIT
+			uniform.walks(starts, steps, round);
+			System.out.printf("uniform:  %d walks, %d steps, %.0f steps/second%n", starts.length, uniform.lastSteps(), uniform.stepsPerSecond());
+			weighted.walks(starts, steps, round);
+			System.out.printf("weighted: %d walks, %d steps, %.0f steps/second%n", starts.length, weighted.lastSteps(), weighted.stepsPerSecond());
+		}
+	}
+}
@@ -0,0 +1,340 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Level-synchronous BFS over a co-star graph split across several local JVM processes
+ * Each BfsShard process loads only the edges of the actors it owns; this coordinator holds no graph at all.
+ * Every level it sends each shard the (vertex, parent) candidates it owns, all shards expand in parallel,
+ * and their next-level candidates are deduplicated and routed back by owner. Queries after a BFS (paths,
+ * numbers, missing actors, average separation) are answered by asking the owning shards.
+ *
+ * When several parents are equally close, the shards and the coordinator keep the smallest one, the same tie-break
+ * as GraphLib.bfs, so the tree (and with it paths and averageSeparation) matches a single-process BFS; the benchmark
+ * in main checks that.
+ *
+ * @author Sajjad
+ */
+public class ShardedBfs implements AutoCloseable {
+	private static final int CONNECT_TIMEOUT = 120_000;		// ms to wait for the shards to load and connect
+	private static final int ACCEPT_POLL = 200;				// ms between checks that the shards are still running
+
+	private final int numShards;
+	private final List<Process> processes = new ArrayList<>();
+	private final Socket[] sockets;
+	private final DataInputStream[] ins;
+	private final DataOutputStream[] outs;
+	private int numVertices;				// total actors owned by the shards
+	private String center;					// center of the last successful BFS (null if there isn't one to query)
+	private int reached;					// vertices reached by that BFS
+
+	/**
+	 * Spawns the shard processes (with this JVM's classpath) and waits for them to load the movie files
+	 * @throws IllegalArgumentException if numShards < 1
+	 * @throws IOException if a shard exits or doesn't connect in time
+	 */
+	public ShardedBfs(int numShards, String actorFile, String movieFile, String movieToActorFile) throws IOException {
+		if (numShards < 1) throw new IllegalArgumentException("Need at least one shard, not " + numShards);
+		this.numShards = numShards;
+		sockets = new Socket[numShards];
+		ins = new DataInputStream[numShards];
+		outs = new DataOutputStream[numShards];
+
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classpath = System.getProperty("java.class.path");
+		try (ServerSocket server = new ServerSocket(0, numShards, InetAddress.getLoopbackAddress())) {
+			for (int i = 0; i < numShards; i++) {
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", classpath, "BfsShard",
+						String.valueOf(server.getLocalPort()), String.valueOf(i), String.valueOf(numShards),
+						actorFile, movieFile, movieToActorFile);
+				builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				processes.add(builder.start());
+			}
+
+			server.setSoTimeout(ACCEPT_POLL);
+			long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+			for (int i = 0; i < numShards; i++) {
+				Socket socket = accept(server, deadline);
+				socket.setTcpNoDelay(true);		// small messages every level; don't wait to batch them
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				int index = in.readInt();
+				numVertices += in.readInt();
+				sockets[index] = socket;
+				ins[index] = in;
+				outs[index] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for the next shard to connect, failing as soon as any shard process has exited (e.g., a bad file or out of memory)
+	 */
+	private Socket accept(ServerSocket server, long deadline) throws IOException {
+		while (true) {
+			try {
+				return server.accept();
+			} catch (SocketTimeoutException e) {
+				for (int s = 0; s < processes.size(); s++) {
+					Process process = processes.get(s);
+					if (!process.isAlive())
+						throw new IOException("Shard " + s + " exited with code " + process.exitValue() + " before connecting");
+				}
+				if (System.currentTimeMillis() > deadline)
+					throw new IOException("Shards didn't connect within " + CONNECT_TIMEOUT + " ms");
+			}
+		}
+	}
+
+	public int numShards() {
+		return numShards;
+	}
+
+	/** Number of actors in the graph */
+	public int numVertices() {
+		return numVertices;
+	}
+
+	/**
+	 * BFS from a new center; the shards keep the shortest path tree for the queries below
+	 * @return		number of vertices reached, including the center
+	 * @throws IllegalArgumentException if center isn't in the graph (the queries then fail until a BFS succeeds)
+	 */
+	public int bfs(String center) throws IOException {
+		this.center = null;		// the shards drop the old tree, so nothing can be queried until this one finishes
+		this.reached = 0;
+		for (DataOutputStream out : outs) out.writeInt(BfsShard.BFS);
+
+		List<List<String[]>> batches = emptyBatches();
+		batches.get(BfsShard.owner(center, numShards)).add(new String[] { center, null });
+		int reached = 0;
+		boolean more = true;
+		while (more) {
+			for (int s = 0; s < numShards; s++) {	// send every batch before reading, so the shards work in parallel
+				DataOutputStream out = outs[s];
+				out.writeInt(BfsShard.FRONTIER);
+				out.writeInt(batches.get(s).size());
+				for (String[] pair : batches.get(s)) {
+					out.writeUTF(pair[0]);
+					out.writeBoolean(pair[1] != null);
+					if (pair[1] != null) out.writeUTF(pair[1]);
+				}
+				out.flush();
+			}
+
+			Map<String, String> next = new HashMap<>();	// each vertex goes to its owner once per level, with its smallest parent
+			for (int s = 0; s < numShards; s++) {
+				DataInputStream in = ins[s];
+				reached += in.readInt();
+				int n = in.readInt();
+				for (int i = 0; i < n; i++) {
+					String v = in.readUTF(), parent = in.readUTF();
+					next.merge(v, parent, BfsShard::smaller);
+				}
+			}
+			batches = emptyBatches();
+			for (Map.Entry<String, String> entry : next.entrySet()) {
+				batches.get(BfsShard.owner(entry.getKey(), numShards)).add(new String[] { entry.getKey(), entry.getValue() });
+			}
+			more = !next.isEmpty();
+		}
+
+		if (reached == 0) throw new IllegalArgumentException(center + " isn't in the graph");
+		this.center = center;
+		this.reached = reached;
+		return reached;
+	}
+
+	private List<List<String[]>> emptyBatches() {
+		List<List<String[]>> batches = new ArrayList<>();
+		for (int s = 0; s < numShards; s++) batches.add(new ArrayList<>());
+		return batches;
+	}
+
+	/**
+	 * Fails unless there is a successful BFS to query
+	 */
+	private void checkBfs() {
+		if (center == null) throw new IllegalStateException("No BFS to query; run bfs with a center in the graph first");
+	}
+
+	/**
+	 * Path from an actor back to the center of the last BFS, with the movies on each edge
+	 * @return		number -1 and an empty chain if the actor isn't connected
+	 * @throws IllegalStateException if the last BFS failed (or there wasn't one)
+	 */
+	public PathQueries.Result<String, Set<String>> getPath(String actor) throws IOException {
+		checkBfs();
+		List<String> path = new ArrayList<>();
+		List<Set<String>> labels = new ArrayList<>();
+		String curr = actor;
+		while (curr != null) {
+			int s = BfsShard.owner(curr, numShards);
+			outs[s].writeInt(BfsShard.PARENT);
+			outs[s].writeUTF(curr);
+			outs[s].flush();
+			boolean visited = ins[s].readBoolean(), hasParent = ins[s].readBoolean();
+			if (!visited) {	// not reached by the BFS
+				path.clear();
+				labels.clear();
+				break;
+			}
+			path.add(curr);
+			if (hasParent) {
+				curr = ins[s].readUTF();
+				labels.add(new HashSet<>(BfsShard.readStrings(ins[s])));
+			} else {
+				curr = null;	// reached the center
+			}
+		}
+		return new PathQueries.Result<>(actor, center, path, labels);
+	}
+
+	/**
+	 * Actors reached by the last BFS, grouped by number
+	 */
+	public TreeMap<Integer, Set<String>> byNumber() throws IOException {
+		checkBfs();
+		TreeMap<Integer, Set<String>> map = new TreeMap<>();
+		for (DataOutputStream out : outs) {
+			out.writeInt(BfsShard.NUMBERS);
+			out.flush();
+		}
+		for (DataInputStream in : ins) {
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				String actor = in.readUTF();
+				map.computeIfAbsent(in.readInt(), k -> new HashSet<>()).add(actor);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Actors not reached by the last BFS
+	 */
+	public Set<String> missingVertices() throws IOException {
+		checkBfs();
+		Set<String> missing = new HashSet<>();
+		for (DataOutputStream out : outs) {
+			out.writeInt(BfsShard.MISSING);
+			out.flush();
+		}
+		for (DataInputStream in : ins) missing.addAll(BfsShard.readStrings(in));
+		return missing;
+	}
+
+	/**
+	 * Average separation over the last BFS tree, computed as GraphLib.averageSeparation does:
+	 * each leaf at depth d contributes 0 + 1 + ... + d, divided by the number of vertices in the tree
+	 */
+	public double averageSeparation() throws IOException {
+		checkBfs();
+		if (reached == 1) return 0;
+
+		// tell each shard which of its actors are parents, so the rest are leaves
+		for (DataOutputStream out : outs) {
+			out.writeInt(BfsShard.PARENTS);
+			out.flush();
+		}
+		List<List<String>> children = new ArrayList<>();
+		for (int s = 0; s < numShards; s++) children.add(new ArrayList<>());
+		for (DataInputStream in : ins) {
+			for (String parent : BfsShard.readStrings(in)) children.get(BfsShard.owner(parent, numShards)).add(parent);
+		}
+		for (int s = 0; s < numShards; s++) {
+			outs[s].writeInt(BfsShard.CHILDREN);
+			BfsShard.writeStrings(outs[s], children.get(s));
+			outs[s].writeInt(BfsShard.LEAF_SEPARATION);
+			outs[s].flush();
+		}
+
+		double totalSep = 0;
+		for (DataInputStream in : ins) totalSep += in.readLong();
+		return totalSep / reached;
+	}
+
+	/**
+	 * Stops the shard processes
+	 */
+	public void close() {
+		for (int s = 0; s < numShards; s++) {
+			try {
+				if (outs[s] != null) {
+					outs[s].writeInt(BfsShard.QUIT);
+					outs[s].flush();
+				}
+				if (sockets[s] != null) sockets[s].close();
+			} catch (IOException e) {
+				// shard already gone
+			}
+		}
+		for (Process process : processes) {
+			try {
+				if (!process.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) process.destroyForcibly();
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Scaling benchmark: BFS from the center on one process, then on 1, 2, 4 and 8 shards, checking each against
+	 * the single process: numbers, average separation, and every actor's path (the number of paths that differ)
+	 * Usage: ShardedBfs actors movies movie-actors [center] [rounds]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: ShardedBfs <actors> <movies> <movie-actors> [center] [rounds]");
+			return;
+		}
+		String center = args.length > 3 ? args[3] : "Kevin Bacon";
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+		BaconGame baconGame = new BaconGame();
+		baconGame.buildActorIDMap(args[0]);
+		baconGame.buildMovieIDMap(args[1]);
+		baconGame.buildMovieToActor(args[2]);
+		baconGame.buildGraph();
+
+		Graph<String, Set<String>> tree = null;
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) tree = GraphLib.bfs(baconGame.graph, center);
+		double expectedSeparation = GraphLib.averageSeparation(tree, center);
+		System.out.printf("single process: %.1f ms per BFS, %d reached, average separation %.4f%n",
+				(System.nanoTime() - start) / 1e6 / rounds, tree.numVertices(), expectedSeparation);
+		TreeMap<Integer, Set<String>> expected = new TreeMap<>();
+		for (String actor : tree.vertices()) {
+			expected.computeIfAbsent(GraphLib.getPath(tree, actor).size() - 1, k -> new HashSet<>()).add(actor);
+		}
+
+		for (int shards : new int[] { 1, 2, 4, 8 }) {
+			start = System.nanoTime();
+			try (ShardedBfs sharded = new ShardedBfs(shards, args[0], args[1], args[2])) {
+				double startup = (System.nanoTime() - start) / 1e6;
+				sharded.bfs(center);	// warm up
+				start = System.nanoTime();
+				int reached = 0;
+				for (int r = 0; r < rounds; r++) reached = sharded.bfs(center);
+				double perBfs = (System.nanoTime() - start) / 1e6 / rounds;
+				boolean sameNumbers = sharded.byNumber().equals(expected);
+				double separation = sharded.averageSeparation();
+				int differentPaths = 0;
+				for (String actor : tree.vertices()) {
+					if (!sharded.getPath(actor).path.equals(GraphLib.getPath(tree, actor))) differentPaths++;
+				}
+				System.out.printf("%d shard(s): %.1f ms per BFS, %d reached, startup %.0f ms, same numbers: %b, "
+						+ "average separation %.4f (off by %.4f), paths that differ: %d%n",
+						shards, perBfs, reached, startup, sameNumbers, separation, separation - expectedSeparation, differentPaths);
+			}
+		}
+	}
+}